@@ -0,0 +1,238 @@
+#!/usr/bin/env python
+
+# End-to-end scaling benchmark of the BackSPIN plugin pipeline.
+#
+# Drives the same steps BackSPIN.invokeAlgorithm runs inside SeqGeq, outside
+# the GUI: the SeqGeq CSV export (here written by synthData.py and timed as the
+# export stage) is converted to CEF by cefWriter.py, clustered by backSPIN.py,
+# converted back by cefReader.py and the cluster and gene set CSVs are read
+# back. The script templates are taken from ../src/bsScripts and filled in
+# exactly like the plugin does.
+#
+# For every point of the cells x genes x depth grid it records the wall time of
+# each stage, the peak resident memory of the heaviest stage and the adjusted
+# Rand index of the deepest backSPIN level against the planted clusters.
+# Run it with the python interpreter the plugin uses.
+
+from __future__ import division, print_function, absolute_import
+import numpy as numpy
+import csv
+import getopt
+import os
+import shutil
+import subprocess
+import sys
+import tempfile
+import time
+
+import synthData
+
+try:
+    import psutil
+except ImportError:
+    psutil = None
+
+BS_SCRIPTS = os.path.join(os.path.dirname(os.path.abspath(__file__)), '..', 'src', 'bsScripts')
+RUN_ID = 'backSPINbench'
+COLUMNS = ['cells', 'genes', 'depth', 'repeat', 'export_s', 'cefWriter_s', 'backSPIN_s', 'cefReader_s',
+           'readBack_s', 'total_s', 'peak_mb', 'clusters', 'ari']
+
+
+def adjusted_rand_index(labels_a, labels_b):
+    '''Adjusted Rand index between two labelings of the same cells'''
+    a = numpy.unique(labels_a, return_inverse=True)[1]
+    b = numpy.unique(labels_b, return_inverse=True)[1]
+    table = numpy.zeros((a.max()+1, b.max()+1))
+    numpy.add.at(table, (a, b), 1)
+    comb2 = lambda x: x*(x-1)/2.
+    sum_ij = comb2(table).sum()
+    sum_a = comb2(table.sum(1)).sum()
+    sum_b = comb2(table.sum(0)).sum()
+    expected = sum_a*sum_b/comb2(len(a))
+    max_index = (sum_a+sum_b)/2.
+    if max_index == expected:
+        return 1.
+    return (sum_ij-expected)/(max_index-expected)
+
+
+def fill_template(template, destination, replacements):
+    '''Copy a script from bsScripts replacing its placeholders, as the plugin does'''
+    with open(os.path.join(BS_SCRIPTS, template)) as fin:
+        script = fin.read()
+    for placeholder, value in replacements:
+        script = script.replace(placeholder, value)
+    with open(destination, 'w') as fout:
+        fout.write(script)
+
+
+def run_stage(args):
+    '''Run one pipeline step, returns the wall time in seconds and the peak RSS in MB (nan if unknown)'''
+    with open(os.devnull, 'w') as devnull:
+        start = time.time()
+        p = subprocess.Popen(args, stdout=devnull, stderr=subprocess.STDOUT)
+        if hasattr(os, 'wait4'):
+            pid, status, usage = os.wait4(p.pid, 0)
+            wall = time.time() - start
+            returncode = os.WEXITSTATUS(status)
+            # ru_maxrss is in kilobytes on Linux and in bytes on Mac OS X
+            peak = usage.ru_maxrss / 1024.
+            if sys.platform == 'darwin':
+                peak /= 1024.
+        else:
+            # No rusage on Windows: poll the peak working set with psutil if it is installed
+            peak = numpy.nan
+            if psutil is not None:
+                try:
+                    proc = psutil.Process(p.pid)
+                    while p.poll() is None:
+                        info = proc.memory_info()
+                        peak = numpy.fmax(peak, getattr(info, 'peak_wset', info.rss) / 1024.**2)
+                        time.sleep(0.05)
+                except psutil.Error:
+                    pass
+            returncode = p.wait()
+            wall = time.time() - start
+    if returncode != 0:
+        raise RuntimeError('%s exited with status %i' % (' '.join(args), returncode))
+    return wall, peak
+
+
+def read_back(clusters_csv, gene_sets_csv):
+    '''Read the CSVs written by cefReader.py, like the plugin does before building gates and gene sets'''
+    with open(clusters_csv) as fin:
+        rows = list(csv.reader(fin))[1:]
+    clusters = dict( (row[0], int(row[1])) for row in rows )
+    with open(gene_sets_csv) as fin:
+        gene_sets = dict( (row[0], int(row[-1])) for row in csv.reader(fin) )
+    return clusters, gene_sets
+
+
+def run_pipeline(workdir, sample_csv, levels, n_features):
+    '''Run cefWriter, backSPIN, cefReader and the read back on one sample, returns timings, peak memory and clusters'''
+    python = sys.executable
+    input_cef = os.path.join(workdir, 'sample.bsInputCEF.cef')
+    output_cef = os.path.join(workdir, 'sample.bsOutputCEF.cef')
+    clusters_csv = os.path.join(workdir, 'sample.Clusters.csv')
+    gene_sets_csv = os.path.join(workdir, 'sample.GeneSets.csv')
+    cef_writer = os.path.join(workdir, 'sample.bsCEFWriter.py')
+    cef_reader = os.path.join(workdir, 'sample.bsCEFReader.py')
+    backspin = os.path.join(workdir, 'backSPIN.py')
+
+    fill_template('cefWriter.py', cef_writer, [('SAMPLE_FILE_FROM_SEQGEQ', sample_csv),
+        ('BackSPIN_Input_CEF_fName', input_cef), ('DATE_TIME_SCRIPT_RAN', time.strftime('%Y/%m/%d %H:%M:%S'))])
+    fill_template('cefReader.py', cef_reader, [('BackSPIN_Output_CEF', output_cef),
+        ('CLUSTERS_OUTFILE', clusters_csv), ('GENE_SET_OUTFILE', gene_sets_csv), ('bRUNID', RUN_ID)])
+    backspin_args = [python, backspin, '-i', input_cef, '-o', output_cef, '-d', str(levels)]
+    if n_features > 0:
+        backspin_args += ['-f', str(n_features)]
+    backspin_args += ['-v']
+
+    timings = {}
+    peak = numpy.nan
+    for name, args in [('cefWriter', [python, cef_writer]), ('backSPIN', backspin_args), ('cefReader', [python, cef_reader])]:
+        timings[name], stage_peak = run_stage(args)
+        peak = numpy.fmax(peak, stage_peak)
+    start = time.time()
+    clusters, gene_sets = read_back(clusters_csv, gene_sets_csv)
+    timings['readBack'] = time.time() - start
+    return timings, peak, clusters
+
+
+def parse_grid(a):
+    return [int(el) for el in a.split(',') if el != '']
+
+
+def usage():
+    print('''usage: benchPipeline.py [-n cells] [-g genes] [-d depth] [-f features] [-r repeats] [-o results.csv] [-w workdir] [-x seed] [-k]
+       -n  comma separated numbers of cells, defaults to 250,500,1000,2000
+       -g  comma separated numbers of genes, defaults to 200,1000
+       -d  comma separated depths, used both for the planted hierarchy and backSPIN -d, defaults to 2,3
+       -f  genes kept by the CV vs. mean feature selection (backSPIN -f), 0 disables it, defaults to 0
+       -r  repetitions of every grid point, defaults to 1
+       -o  CSV the results are written to, defaults to bench_results.csv
+       -w  working directory, kept after the run, defaults to a temporary directory
+       -x  random seed of the first dataset, defaults to 0
+       -k  keep the working directory
+    peak_mb is read from the process rusage on Linux and Mac OS X. Windows has no rusage, there
+    the peak working set is polled with psutil if it is installed, otherwise peak_mb is nan.
+    ''')
+
+
+if __name__ == '__main__':
+    cells_grid = [250, 500, 1000, 2000] # -n
+    genes_grid = [200, 1000] # -g
+    depth_grid = [2, 3] # -d
+    n_features = 0 # -f
+    repeats = 1 # -r
+    results_path = 'bench_results.csv' # -o
+    workdir = None # -w
+    seed = 0 # -x
+    keep = False # -k
+
+    optlist, args = getopt.gnu_getopt(sys.argv[1:], "hkn:g:d:f:r:o:w:x:", ["help"])
+    for opt, a in optlist:
+        if opt in ("-h", "--help"):
+            usage()
+            sys.exit()
+        elif opt == '-n':
+            cells_grid = parse_grid(a)
+        elif opt == '-g':
+            genes_grid = parse_grid(a)
+        elif opt == '-d':
+            depth_grid = parse_grid(a)
+        elif opt == '-f':
+            n_features = int(a)
+        elif opt == '-r':
+            repeats = int(a)
+        elif opt == '-o':
+            results_path = a
+        elif opt == '-w':
+            workdir = a
+        elif opt == '-x':
+            seed = int(a)
+        elif opt == '-k':
+            keep = True
+        else:
+            assert False, "%s option is not supported" % opt
+
+    if workdir == None:
+        workdir = tempfile.mkdtemp(prefix='backSPINbench')
+    else:
+        # Never delete a directory the user pointed us to
+        keep = True
+    if not os.path.exists(workdir):
+        os.makedirs(workdir)
+    shutil.copy(os.path.join(BS_SCRIPTS, 'Cef_tools.py'), workdir)
+    shutil.copy(os.path.join(BS_SCRIPTS, 'backSPIN.py'), workdir)
+
+    print('\t'.join(COLUMNS))
+    with open(results_path, 'w') as fout:
+        fout.write(','.join(COLUMNS) + '\n')
+        for n_cells in cells_grid:
+            for n_genes in genes_grid:
+                for depth in depth_grid:
+                    for rep in range(repeats):
+                        counts, truth = synthData.generate(n_cells, n_genes, depth, seed=seed)
+                        seed += 1
+                        # Writing the CSV stands in for SeqGeq's export, the first stage of the pipeline
+                        sample_csv = os.path.join(workdir, 'sample.csv')
+                        start = time.time()
+                        synthData.write_seqgeq_csv(sample_csv, counts)
+                        export_s = time.time() - start
+
+                        timings, peak, clusters = run_pipeline(workdir, sample_csv, depth, n_features)
+                        timings['export'] = export_s
+                        found = numpy.array([ clusters[str(c)] for c in range(1, n_cells+1) ])
+                        row = [n_cells, n_genes, depth, rep, '%.3f' % timings['export'],
+                               '%.3f' % timings['cefWriter'], '%.3f' % timings['backSPIN'],
+                               '%.3f' % timings['cefReader'], '%.3f' % timings['readBack'],
+                               '%.3f' % sum(timings.values()), '%.1f' % peak,
+                               len(set(found)), '%.3f' % adjusted_rand_index(truth[:,-1], found)]
+                        print('\t'.join(str(el) for el in row))
+                        sys.stdout.flush()
+                        fout.write(','.join(str(el) for el in row) + '\n')
+                        fout.flush()
+
+    if not keep:
+        shutil.rmtree(workdir)
+    print('\nResults written to %s' % results_path)
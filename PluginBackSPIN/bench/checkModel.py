@@ -0,0 +1,131 @@
+#!/usr/bin/env python
+
+# Check that applying a backSPIN model does not depend on every model gene
+# being in the sample.
+#
+# A synthetic sample is clustered with backSPIN -m, then the model is applied
+# (backSPIN -a) both to the full sample and to a copy of it with part of the
+# genes removed, as when fewer genes are selected in SeqGeq. The cluster of
+# every cell is compared between the two at every level.
+# Run it with the python interpreter the plugin uses.
+
+from __future__ import division, print_function, absolute_import
+import numpy as numpy
+import getopt
+import os
+import shutil
+import sys
+import tempfile
+import time
+
+import synthData
+from benchPipeline import BS_SCRIPTS, fill_template, run_stage
+
+sys.path.insert(0, BS_SCRIPTS)
+from Cef_tools import CEF_obj
+
+
+def to_cef(workdir, name, counts, gene_names):
+    '''Write counts as SeqGeq CSV and convert it with cefWriter.py, returns the path of the cef'''
+    sample_csv = os.path.join(workdir, name + '.csv')
+    cef_path = os.path.join(workdir, name + '.cef')
+    cef_writer = os.path.join(workdir, name + '.bsCEFWriter.py')
+    synthData.write_seqgeq_csv(sample_csv, counts, gene_names=gene_names)
+    fill_template('cefWriter.py', cef_writer, [('SAMPLE_FILE_FROM_SEQGEQ', sample_csv),
+        ('BackSPIN_Input_CEF_fName', cef_path), ('DATE_TIME_SCRIPT_RAN', time.strftime('%Y/%m/%d %H:%M:%S'))])
+    run_stage([sys.executable, cef_writer])
+    return cef_path
+
+
+def read_levels(cef_path):
+    '''The Level_i_group column attributes of a backSPIN output, one row per level'''
+    cef = CEF_obj()
+    cef.readCEF(cef_path)
+    return numpy.array([ cef.col_attr_values[n] for n, name in enumerate(cef.col_attr_names)
+                         if name.startswith('Level_') ], dtype=int)
+
+
+def usage():
+    print('''usage: checkModel.py [-n cells] [-g genes] [-d depth] [-r removed] [-t agreement] [-w workdir] [-x seed]
+       -n  number of cells, defaults to 1000
+       -g  number of genes, defaults to 500
+       -d  depth of the planted hierarchy and backSPIN -d, defaults to 2
+       -r  fraction of the genes removed from the partial sample, defaults to 0.2
+       -t  minimum fraction of cells with the same cluster at every level, defaults to 0.95
+       -w  working directory, kept after the run, defaults to a temporary directory
+       -x  random seed, defaults to 0
+    Exits with status 1 when the agreement is below -t.
+    ''')
+
+
+if __name__ == '__main__':
+    n_cells = 1000 # -n
+    n_genes = 500 # -g
+    depth = 2 # -d
+    removed = 0.2 # -r
+    min_agreement = 0.95 # -t
+    workdir = None # -w
+    seed = 0 # -x
+    keep = False
+
+    optlist, args = getopt.gnu_getopt(sys.argv[1:], "hn:g:d:r:t:w:x:", ["help"])
+    for opt, a in optlist:
+        if opt in ("-h", "--help"):
+            usage()
+            sys.exit()
+        elif opt == '-n':
+            n_cells = int(a)
+        elif opt == '-g':
+            n_genes = int(a)
+        elif opt == '-d':
+            depth = int(a)
+        elif opt == '-r':
+            removed = float(a)
+        elif opt == '-t':
+            min_agreement = float(a)
+        elif opt == '-w':
+            workdir = a
+        elif opt == '-x':
+            seed = int(a)
+        else:
+            assert False, "%s option is not supported" % opt
+
+    if workdir == None:
+        workdir = tempfile.mkdtemp(prefix='backSPINcheck')
+    else:
+        # Never delete a directory the user pointed us to
+        keep = True
+    if not os.path.exists(workdir):
+        os.makedirs(workdir)
+    shutil.copy(os.path.join(BS_SCRIPTS, 'Cef_tools.py'), workdir)
+    backspin = os.path.join(workdir, 'backSPIN.py')
+    shutil.copy(os.path.join(BS_SCRIPTS, 'backSPIN.py'), backspin)
+
+    counts, truth = synthData.generate(n_cells, n_genes, depth, seed=seed)
+    gene_names = numpy.array(['Gene%i' % (i+1) for i in range(n_genes)])
+    rng = numpy.random.RandomState(seed)
+    kept = numpy.sort(rng.permutation(n_genes)[int(round(removed*n_genes)):])
+
+    full_cef = to_cef(workdir, 'full', counts, gene_names)
+    partial_cef = to_cef(workdir, 'partial', counts[kept,:], gene_names[kept])
+    model = os.path.join(workdir, 'model.cef')
+    run_stage([sys.executable, backspin, '-i', full_cef, '-o', os.path.join(workdir, 'clustered.cef'),
+               '-d', str(depth), '-m', model])
+    levels = []
+    for cef_path in [full_cef, partial_cef]:
+        applied = cef_path.replace('.cef', '.applied.cef')
+        run_stage([sys.executable, backspin, '-i', cef_path, '-o', applied, '-a', model])
+        levels.append(read_levels(applied))
+
+    print('%i of %i genes kept in the partial sample' % (len(kept), n_genes))
+    print('level\tagreement')
+    agreement = (levels[0] == levels[1]).mean(1)
+    for level, value in enumerate(agreement):
+        print('%i\t%.4f' % (level, value))
+
+    if not keep:
+        shutil.rmtree(workdir)
+    if agreement.min() < min_agreement:
+        print('\nFAILED: the partial sample changes the cluster of more than %.1f%% of the cells.' % (100*(1-min_agreement)))
+        sys.exit(1)
+    print('\nOK')
@@ -0,0 +1,160 @@
+#!/usr/bin/env python
+
+# Synthetic single-cell count matrices for benchmarking the BackSPIN plugin.
+#
+# Counts are drawn from a zero-inflated negative binomial. Cells belong to the
+# leaves of a balanced binary hierarchy, mirroring the nested splits backSPIN
+# looks for: every node of the hierarchy gets its own marker genes, which are
+# up-regulated in all the cells below that node.
+#
+# The matrix is written the way SeqGeq exports it for the plugin
+# (ExportFileTypes.CSV_PIR_SCALE): parameters in rows, the first row is the
+# CellId parameter and every following row is a gene. The planted clusters are
+# written to a separate CSV with one column per level.
+
+from __future__ import division, print_function, absolute_import
+import numpy as numpy
+import getopt
+import sys
+
+
+def generate(n_cells, n_genes, depth, markers_per_node=10, fold_change=4., dispersion=2., dropout=0.3,
+             mean_log=0., sigma_log=1.5, library_sigma=0.3, seed=None):
+    '''Generate a zero-inflated negative binomial count matrix with planted hierarchical clusters
+    Parameters
+    ----------
+    n_cells: int
+        number of cells (columns)
+    n_genes: int
+        number of genes (rows)
+    depth: int
+        number of levels of the binary hierarchy, giving 2^depth leaf clusters
+    markers_per_node: int
+        marker genes assigned to every node of the hierarchy below the root
+    fold_change: float
+        expression fold change of marker genes in the cells below their node
+    dispersion: float
+        negative binomial size parameter (smaller is noisier)
+    dropout: float
+        probability that a count is replaced by a structural zero
+    mean_log, sigma_log: float
+        parameters of the lognormal distribution of the baseline gene means
+    library_sigma: float
+        sigma of the lognormal per-cell size factor
+    seed: int
+        seed of the random generator
+
+    Returns
+    -------
+    counts: 2-D array
+        integer counts, rows are genes and columns cells
+    truth: 2-D array
+        for each level (columns 0..depth) the planted cluster of each cell
+    '''
+    rng = numpy.random.RandomState(seed)
+    n_leaves = 2**depth
+    # Cells are not grouped by cluster, like in a real export, so SPIN does not start from the answer
+    leaf = rng.randint(n_leaves, size=n_cells)
+    # Cluster at level l is the leaf index with the (depth - l) lowest bits dropped
+    truth = numpy.column_stack([ leaf >> (depth - l) for l in range(depth+1) ])
+
+    base = numpy.exp(rng.normal(mean_log, sigma_log, size=n_genes))
+    log_fold = numpy.zeros((n_genes, n_leaves))
+    genes = rng.permutation(n_genes)
+    used = 0
+    for l in range(1, depth+1):
+        for node in range(2**l):
+            markers = genes[used:used+markers_per_node]
+            used += markers_per_node
+            if len(markers) == 0:
+                break
+            below = numpy.arange(n_leaves) >> (depth - l) == node
+            log_fold[numpy.ix_(markers, below)] += numpy.log(fold_change)
+    if used > n_genes:
+        print('WARNING: %i marker genes requested but only %i genes available.' % (used, n_genes))
+
+    size_factor = numpy.exp(rng.normal(0, library_sigma, size=n_cells))
+    mu = base[:,numpy.newaxis] * numpy.exp(log_fold[:,leaf]) * size_factor[numpy.newaxis,:]
+    # Negative binomial as a gamma-Poisson mixture
+    counts = rng.poisson(rng.gamma(dispersion, mu/dispersion))
+    counts[rng.random_sample(counts.shape) < dropout] = 0
+    return counts, truth
+
+
+def write_seqgeq_csv(filepath, counts, cell_ids=None, gene_names=None):
+    '''Write counts in SeqGeq's CSV_PIR_SCALE layout: a CellId row followed by one row per gene'''
+    n_genes, n_cells = counts.shape
+    if cell_ids is None:
+        cell_ids = numpy.arange(1, n_cells+1)
+    if gene_names is None:
+        gene_names = ['Gene%i' % (i+1) for i in range(n_genes)]
+    with open(filepath, 'w') as fout:
+        fout.write('CellId,' + ','.join(str(c) for c in cell_ids) + '\n')
+        for name, row in zip(gene_names, counts):
+            fout.write(name + ',' + ','.join(str(int(el)) for el in row) + '\n')
+
+
+def write_truth_csv(filepath, truth, cell_ids=None):
+    '''Write the planted cluster of every cell, one column per level'''
+    if cell_ids is None:
+        cell_ids = numpy.arange(1, truth.shape[0]+1)
+    with open(filepath, 'w') as fout:
+        fout.write('CellId,' + ','.join('Level_%i' % l for l in range(truth.shape[1])) + '\n')
+        for c, row in zip(cell_ids, truth):
+            fout.write(str(c) + ',' + ','.join(str(int(el)) for el in row) + '\n')
+
+
+def usage():
+    print('''usage: synthData.py -o outputfile [-t truthfile] [-n cells] [-g genes] [-d depth] [-m markers] [-x seed]
+       -o  CSV_PIR_SCALE count matrix to write
+       -t  CSV of the planted clusters (defaults to outputfile with .truth.csv)
+       -n  number of cells, defaults to 1000
+       -g  number of genes, defaults to 500
+       -d  depth of the planted hierarchy, defaults to 3
+       -m  marker genes per node of the hierarchy, defaults to 10
+       -x  random seed
+    ''')
+
+
+if __name__ == '__main__':
+    output_path = None
+    truth_path = None
+    n_cells = 1000 # -n
+    n_genes = 500 # -g
+    depth = 3 # -d
+    markers = 10 # -m
+    seed = None # -x
+
+    optlist, args = getopt.gnu_getopt(sys.argv[1:], "ho:t:n:g:d:m:x:", ["help"])
+    for opt, a in optlist:
+        if opt in ("-h", "--help"):
+            usage()
+            sys.exit()
+        elif opt == '-o':
+            output_path = a
+        elif opt == '-t':
+            truth_path = a
+        elif opt == '-n':
+            n_cells = int(a)
+        elif opt == '-g':
+            n_genes = int(a)
+        elif opt == '-d':
+            depth = int(a)
+        elif opt == '-m':
+            markers = int(a)
+        elif opt == '-x':
+            seed = int(a)
+        else:
+            assert False, "%s option is not supported" % opt
+
+    if output_path == None:
+        usage()
+        sys.exit()
+    if truth_path == None:
+        truth_path = output_path.replace('.csv', '') + '.truth.csv'
+
+    counts, truth = generate(n_cells, n_genes, depth, markers_per_node=markers, seed=seed)
+    write_seqgeq_csv(output_path, counts)
+    write_truth_csv(truth_path, truth)
+    print('Wrote %i genes x %i cells to %s' % (n_genes, n_cells, output_path))
+    print('Wrote planted clusters to %s' % truth_path)
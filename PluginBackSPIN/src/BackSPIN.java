@@ -26,6 +26,7 @@ import java.util.StringTokenizer;
 import javax.swing.Box;
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
+import javax.swing.JCheckBox;
 import javax.swing.JOptionPane;
 import com.flowjo.lib.parameters.ParameterSelectionPanel;
 import com.flowjo.lib.parameters.ParameterSelectionPanel.eParameterSelectionMode;
@@ -68,11 +69,21 @@ public class BackSPIN implements PopulationPluginInterface {
 	private String cefReader_SCRIPT_PATH = "bsScripts/cefReader.py";
 	private String cefTools_SCRIPT_PATH = "bsScripts/Cef_tools.py";
 	private String cefWriter_SCRIPT_Path = "bsScripts/cefWriter.py";
+	private String cefSweepReader_SCRIPT_PATH = "bsScripts/cefSweepReader.py";
 
 	private static int noisy_Genes_reduction = 0; 
 	private static int numLevels = 3;  //Default number of Levels to Display
 	private static Icon gIcon = null;
 	private static String bsParamName_RunID =  "1";
+	// Saved cluster model, exported after a run or applied to classify a new sample
+	private static String bsModelPath = "";
+	private static boolean exportModel = false;
+	private static boolean applyModel = false;
+	// Parameter sweep, comma separated values of each option, every combination is run
+	private static boolean sweepMode = false;
+	private static String sweepLevels = "2,3,4";
+	private static String sweepGenes = "0";
+	private static String sweepStopConst = "1.15";
 // This method gets the name to be displayed by SeqGeq.
 
 	@Override public String getName() {	return "BackSPIN";	}
@@ -121,6 +132,13 @@ public class BackSPIN implements PopulationPluginInterface {
 		result.setInt("numLevels", numLevels);
 		result.setInt("noisyGenes", noisy_Genes_reduction);
 		result.setString("BSrunID", bsParamName_RunID);
+		result.setString("modelPath", bsModelPath);
+		result.setBool("exportModel", exportModel);
+		result.setBool("applyModel", applyModel);
+		result.setBool("sweepMode", sweepMode);
+		result.setString("sweepLevels", sweepLevels);
+		result.setString("sweepGenes", sweepGenes);
+		result.setString("sweepStopConst", sweepStopConst);
 //		result.setString("exportType", value);
 		result.setBool("runAgain", runAgain);
 		return result;
@@ -137,6 +155,13 @@ public class BackSPIN implements PopulationPluginInterface {
 		bsParamName_RunID = element.getString("BSrunID", bsParamName_RunID);
 		numLevels = element.getInt("numLevels", numLevels);
 		noisy_Genes_reduction = element.getInt("noisyGenes", noisy_Genes_reduction);
+		bsModelPath = element.getString("modelPath", bsModelPath);
+		exportModel = element.getBool("exportModel");
+		applyModel = element.getBool("applyModel");
+		sweepMode = element.getBool("sweepMode");
+		sweepLevels = element.getString("sweepLevels", sweepLevels);
+		sweepGenes = element.getString("sweepGenes", sweepGenes);
+		sweepStopConst = element.getString("sweepStopConst", sweepStopConst);
 		runAgain = element.getBool("runAgain");
 //		String exportType = element.getString("exportType");
 	}
@@ -203,6 +228,44 @@ public class BackSPIN implements PopulationPluginInterface {
 		GuiFactory.setSizes(bsRunIDField, new Dimension(50, 25));
 		HBox runIDBox = new HBox(Box.createHorizontalGlue(), runIDLabel, bsRunIDField, Box.createHorizontalGlue());
 		guiObjects.add(runIDBox);
+
+		String modelTip = "Cluster model file. Export saves gene sets, centroids and preprocessing of this run; apply assigns cells to a saved model's clusters without re-clustering.";
+		FJLabel modelLabel = new FJLabel("Model File   ");
+		modelLabel.setToolTipText(modelTip);
+		FJTextField bsModelField = new FJTextField();
+		bsModelField.setText(bsModelPath);
+		bsModelField.setToolTipText(modelTip);
+		GuiFactory.setSizes(bsModelField, new Dimension(200, 25));
+		HBox modelBox = new HBox(Box.createHorizontalGlue(), modelLabel, bsModelField, Box.createHorizontalGlue());
+		guiObjects.add(modelBox);
+		JCheckBox exportModelBox = new JCheckBox("Export Model", exportModel);
+		exportModelBox.setToolTipText(modelTip);
+		JCheckBox applyModelBox = new JCheckBox("Apply Model (skip clustering)", applyModel);
+		applyModelBox.setToolTipText(modelTip);
+		HBox modelModeBox = new HBox(Box.createHorizontalGlue(), exportModelBox, applyModelBox, Box.createHorizontalGlue());
+		guiObjects.add(modelModeBox);
+
+		String sweepTip = "Runs every combination of the comma separated values, sharing preprocessing and correlation work between them. A Gene Filter of 0 keeps all genes.";
+		JCheckBox sweepModeBox = new JCheckBox("Parameter Sweep", sweepMode);
+		sweepModeBox.setToolTipText(sweepTip);
+		FJLabel sweepLevelsLabel = new FJLabel(" Levels ");
+		FJTextField sweepLevelsField = new FJTextField();
+		sweepLevelsField.setText(sweepLevels);
+		sweepLevelsField.setToolTipText(sweepTip);
+		GuiFactory.setSizes(sweepLevelsField, new Dimension(60, 25));
+		FJLabel sweepGenesLabel = new FJLabel(" Gene Filter ");
+		FJTextField sweepGenesField = new FJTextField();
+		sweepGenesField.setText(sweepGenes);
+		sweepGenesField.setToolTipText(sweepTip);
+		GuiFactory.setSizes(sweepGenesField, new Dimension(60, 25));
+		FJLabel sweepStopConstLabel = new FJLabel(" Stop Const ");
+		FJTextField sweepStopConstField = new FJTextField();
+		sweepStopConstField.setText(sweepStopConst);
+		sweepStopConstField.setToolTipText(sweepTip);
+		GuiFactory.setSizes(sweepStopConstField, new Dimension(60, 25));
+		HBox sweepBox = new HBox(Box.createHorizontalGlue(), sweepModeBox, sweepLevelsLabel, sweepLevelsField, sweepGenesLabel, sweepGenesField, 
+				sweepStopConstLabel, sweepStopConstField, Box.createHorizontalGlue());
+		guiObjects.add(sweepBox);
 		ParameterSelectionPanel pane = new ParameterSelectionPanel(mgr, 
 										eParameterSelectionMode.WithSetsAndParameters, 
 										true, false, false, true);
@@ -243,6 +306,13 @@ public class BackSPIN implements PopulationPluginInterface {
 			numLevels = numLevelsField.getInt();
 			noisy_Genes_reduction = noisyGeneField.getInt();
 			bsParamName_RunID = bsRunIDField.getText();
+			bsModelPath = bsModelField.getText().trim();
+			exportModel = exportModelBox.isSelected();
+			applyModel = applyModelBox.isSelected();
+			sweepMode = sweepModeBox.isSelected();
+			sweepLevels = sweepLevelsField.getText().replaceAll("\\s", "");
+			sweepGenes = sweepGenesField.getText().replaceAll("\\s", "");
+			sweepStopConst = sweepStopConstField.getText().replaceAll("\\s", "");
 			if(parameterNames.contains(bsParamName_RunID) || parameterNames.contains("BackSPIN"+bsParamName_RunID)) 
 			{
 				bsParamName_RunID += "1";
@@ -378,6 +448,39 @@ public class BackSPIN implements PopulationPluginInterface {
 		}
 	}
 
+	public void createReadSweepCEFscript(String cefSweepReaderLocation, String bsCEFOutput, String clusterCSV, String sweepTableCSV, String bsRUNID) throws FileNotFoundException
+	{		
+		InputStream scriptStream = BackSPIN.class.getResourceAsStream(cefSweepReader_SCRIPT_PATH);
+		BufferedReader rTemplateReader = null;
+		try {
+			rTemplateReader = new BufferedReader(new InputStreamReader(scriptStream));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}		
+		String scriptLine;
+		BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(cefSweepReaderLocation)));
+		try {
+			while((scriptLine = rTemplateReader.readLine()) != null) 
+			{
+				scriptLine = scriptLine.replaceAll("BackSPIN_Output_CEF", bsCEFOutput);
+				scriptLine = scriptLine.replaceAll("CLUSTERS_OUTFILE", clusterCSV);
+				scriptLine = scriptLine.replaceAll("SWEEP_TABLE_OUTFILE", sweepTableCSV);
+				scriptLine = scriptLine.replaceAll("bRUNID", bsRUNID);
+				System.out.println(scriptLine);
+				bw.write(scriptLine);
+				bw.newLine();
+			}
+			bw.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		if(rTemplateReader != null) {
+			try { rTemplateReader.close(); }
+			catch (Exception e) { e.printStackTrace(); }
+		}
+	}
+
 	@Override
 	public ExternalAlgorithmResults invokeAlgorithm(SElement fcmlQueryElement, File sampleFile, File outputFolder) {
 		// create an SeqGeqExternalAlgorithmResults so we can return a gene set
@@ -396,6 +499,21 @@ public class BackSPIN implements PopulationPluginInterface {
 		// Define all absolute locations of files and scripts/rewritten scripts.
 		if (!outputFolder.exists()){result.setErrorMessage("Error: Could not create output folder.");return result;}
 		if (!sampleFile.exists()){result.setErrorMessage("Error: Selected file not created - Check permissions, or save analysis and try again.");return result;}
+		if ((exportModel || applyModel) && bsModelPath.isEmpty()){result.setErrorMessage("Error: Enter a Model File to export or apply a BackSPIN model.");return result;}
+		if (exportModel && applyModel){result.setErrorMessage("Error: Select either Export Model or Apply Model, not both.");return result;}
+		if (applyModel && !new File(bsModelPath).exists()){result.setErrorMessage("Error: Model File "+bsModelPath+" does not exist.");return result;}
+		if (sweepMode && (exportModel || applyModel)){result.setErrorMessage("Error: Models cannot be exported or applied in a Parameter Sweep.");return result;}
+		if (sweepMode && (!sweepLevels.matches("\\d+(,\\d+)*") || !sweepGenes.matches("\\d+(,\\d+)*") || !sweepStopConst.matches("(\\d+(\\.\\d+)?|\\.\\d+)(,(\\d+(\\.\\d+)?|\\.\\d+))*")))
+		{result.setErrorMessage("Error: Parameter Sweep values must be comma separated numbers.");return result;}
+		if (sweepMode)
+		{
+			// Same range as the Levels field of a single run
+			for (String level : sweepLevels.split(","))
+			{
+				if (!level.matches("[2-9]|10"))
+				{result.setErrorMessage("Error: Parameter Sweep Levels must be between 2 and 10.");return result;}
+			}
+		}
 		String SeqGeq_CSV_FileName = 		sampleFile.getAbsolutePath();
 		String trimSampleName = 			sampleFile.getName().replaceAll(".csv", "").replaceAll(".ExtNode", "").replaceAll(".fcs", "").trim();
 		String Absolute_Path_SampleName = 	outputFolder.getAbsolutePath()+"/"+trimSampleName;
@@ -407,7 +525,10 @@ public class BackSPIN implements PopulationPluginInterface {
 		String cefWriter_Python_Location =  	Absolute_Path_SampleName+".bsCEFWriter.py";
 		String backSPIN_Python_Script_AbsPath = 	outputFolder+"/backSPIN.py";
 		String cefReader_Python_Script_AbsPath = 	Absolute_Path_SampleName+".bsCEFReader.py";
+		String Sweep_Table_CSV_fName = 	Absolute_Path_SampleName+bsParamName_RunID+".SweepTable.csv";
+		String cefSweepReader_Python_Script_AbsPath = 	Absolute_Path_SampleName+".bsCEFSweepReader.py";
 		String backSPIN_PARAM_RUNID = 	"backSPIN"+bsParamName_RunID;
+		String BackSPIN_Model_fName = 	bsModelPath;
 		// Check if OS is Windows, in this case change back-slashes to forward-slashes. \\//endetta
 		if(EngineManager.isWindows())
 		{
@@ -421,6 +542,9 @@ public class BackSPIN implements PopulationPluginInterface {
 			cefWriter_Python_Location =		cefWriter_Python_Location.replaceAll("\\\\", "/");
 			backSPIN_Python_Script_AbsPath =backSPIN_Python_Script_AbsPath.replaceAll("\\\\", "/");
 			cefReader_Python_Script_AbsPath=cefReader_Python_Script_AbsPath.replaceAll("\\\\", "/");
+			BackSPIN_Model_fName = 			BackSPIN_Model_fName.replaceAll("\\\\", "/");
+			Sweep_Table_CSV_fName = 		Sweep_Table_CSV_fName.replaceAll("\\\\", "/");
+			cefSweepReader_Python_Script_AbsPath = cefSweepReader_Python_Script_AbsPath.replaceAll("\\\\", "/");
 		}
 		List<File> listOfFiles = new ArrayList<>();
 		copyCEFTools(CEF_Tools_AbsPath_fName);
@@ -438,23 +562,66 @@ public class BackSPIN implements PopulationPluginInterface {
 		catch (FileNotFoundException e) {e.printStackTrace();}
 		File backSPIN_Python_Script_AbsPath_File = new File(backSPIN_Python_Script_AbsPath);
 		listOfFiles.add(backSPIN_Python_Script_AbsPath_File);
-		executePython(composeBackSPINcommand(backSPIN_Python_Script_AbsPath,BackSPIN_Input_CEF_fName,BackSPIN_Output_CEF_fName, numLevels, noisy_Genes_reduction));
-		try {
-			createReadCEFscript(cefReader_Python_Script_AbsPath, BackSPIN_Output_CEF_fName,Cluster_Output_CSV_fName,GeneSets_Output_CSV_fName, backSPIN_PARAM_RUNID);
-			} 
-		catch (FileNotFoundException e) {JOptionPane.showConfirmDialog(null, "Could not read CEF");e.printStackTrace();}
-		executePython(cefReader_Python_Script_AbsPath);
-		result.setCSVFile(new File(Cluster_Output_CSV_fName));
-		Map<String, Integer> BackSPIN_GeneSet_Map = null;
-		BackSPIN_GeneSet_Map = getBackSPINGeneSets(GeneSets_Output_CSV_fName, result);
-		addGeneSetsToResult(fcmlQueryElement, result, BackSPIN_GeneSet_Map);
-		addGatingML(result, clusterCount, backSPIN_PARAM_RUNID);
+		if (applyModel)
+		{
+			File bsOutputCEF = new File(BackSPIN_Output_CEF_fName);
+			bsOutputCEF.delete();
+			executePython(composeApplyModelCommand(backSPIN_Python_Script_AbsPath,BackSPIN_Input_CEF_fName,BackSPIN_Output_CEF_fName, BackSPIN_Model_fName));
+			// backSPIN.py writes no output when too few of the model genes are in the selection
+			if (!bsOutputCEF.exists())
+			{
+				result.setErrorMessage("Error: Model could not be applied. Select at least half of the genes the model was built on, including genes of every model gene set.");
+				for(File fl : listOfFiles){fl.delete();}
+				return result;
+			}
+		}
+		else if (sweepMode)
+		{
+			// A stale table from an earlier run would hide a failed sweep
+			new File(Sweep_Table_CSV_fName).delete();
+			executePython(composeSweepCommand(backSPIN_Python_Script_AbsPath,BackSPIN_Input_CEF_fName,BackSPIN_Output_CEF_fName, sweepLevels, sweepGenes, sweepStopConst));
+		}
+		else
+			executePython(composeBackSPINcommand(backSPIN_Python_Script_AbsPath,BackSPIN_Input_CEF_fName,BackSPIN_Output_CEF_fName, numLevels, noisy_Genes_reduction, exportModel ? BackSPIN_Model_fName : null));
+		if (sweepMode)
+		{
+			// One cluster parameter per configuration, gene sets are not created in a sweep
+			try {
+				createReadSweepCEFscript(cefSweepReader_Python_Script_AbsPath, BackSPIN_Output_CEF_fName, Cluster_Output_CSV_fName, Sweep_Table_CSV_fName, backSPIN_PARAM_RUNID);
+				}
+			catch (FileNotFoundException e) {JOptionPane.showConfirmDialog(null, "Could not read CEF");e.printStackTrace();}
+			executePython(cefSweepReader_Python_Script_AbsPath);
+			listOfFiles.add(new File(cefSweepReader_Python_Script_AbsPath));
+			List<String[]> sweepTable = getSweepTable(Sweep_Table_CSV_fName);
+			if (sweepTable.isEmpty())
+			{
+				result.setErrorMessage("Error: Parameter Sweep failed, no results were written. Check that Python and the BackSPIN dependencies are correctly installed.");
+				for(File fl : listOfFiles){fl.delete();}
+				return result;
+			}
+			result.setCSVFile(new File(Cluster_Output_CSV_fName));
+			addSweepGatingML(result, sweepTable);
+			showSweepTable(sweepTable, Sweep_Table_CSV_fName);
+		}
+		else
+		{
+			try {
+				createReadCEFscript(cefReader_Python_Script_AbsPath, BackSPIN_Output_CEF_fName,Cluster_Output_CSV_fName,GeneSets_Output_CSV_fName, backSPIN_PARAM_RUNID);
+				} 
+			catch (FileNotFoundException e) {JOptionPane.showConfirmDialog(null, "Could not read CEF");e.printStackTrace();}
+			executePython(cefReader_Python_Script_AbsPath);
+			result.setCSVFile(new File(Cluster_Output_CSV_fName));
+			Map<String, Integer> BackSPIN_GeneSet_Map = null;
+			BackSPIN_GeneSet_Map = getBackSPINGeneSets(GeneSets_Output_CSV_fName, result);
+			addGeneSetsToResult(fcmlQueryElement, result, BackSPIN_GeneSet_Map);
+			addGatingML(result, clusterCount, backSPIN_PARAM_RUNID);
+		}
 		listOfFiles.add(sampleFile);
 		for(File fl : listOfFiles){fl.delete();}
 		}
 		return result;
 	}
-	private String composeBackSPINcommand(String backSPINscript, String backSPINinputCEF, String backSPINoutputCEF, int levels, int nGenes) {
+	private String composeBackSPINcommand(String backSPINscript, String backSPINinputCEF, String backSPINoutputCEF, int levels, int nGenes, String modelFile) {
 		String bsCommands = null;
 		if(nGenes>0)
 		{
@@ -463,6 +630,28 @@ public class BackSPIN implements PopulationPluginInterface {
 		else{
 			bsCommands = backSPINscript+" -i "+backSPINinputCEF+" -o "+backSPINoutputCEF+" -d "+levels+" -v";
 		}
+		if(modelFile != null)
+		{
+			bsCommands += " -m "+modelFile;
+		}
+		System.out.println("BackSPIN CML Call: "+bsCommands);
+		return bsCommands;
+	}
+	/*
+	 *  This method composes the call that assigns cells to the clusters of a saved model,
+	 *  instead of running BackSPIN, so cluster IDs match the run the model was exported from.
+	 */
+	private String composeApplyModelCommand(String backSPINscript, String backSPINinputCEF, String backSPINoutputCEF, String modelFile) {
+		String bsCommands = backSPINscript+" -i "+backSPINinputCEF+" -o "+backSPINoutputCEF+" -a "+modelFile+" -v";
+		System.out.println("BackSPIN CML Call: "+bsCommands);
+		return bsCommands;
+	}
+	/*
+	 *  This method composes the parameter sweep call, levels, gene filter and stop constant are
+	 *  comma separated lists and BackSPIN runs every combination of them. A gene filter of 0 keeps all genes.
+	 */
+	private String composeSweepCommand(String backSPINscript, String backSPINinputCEF, String backSPINoutputCEF, String levels, String nGenes, String stopConsts) {
+		String bsCommands = backSPINscript+" -i "+backSPINinputCEF+" -o "+backSPINoutputCEF+" -p -d "+levels+" -f "+nGenes+" -k "+stopConsts+" -v";
 		System.out.println("BackSPIN CML Call: "+bsCommands);
 		return bsCommands;
 	}
@@ -479,11 +668,35 @@ public class BackSPIN implements PopulationPluginInterface {
 
 		SElement gate = new SElement("gating:Gating-ML");
 //		if(clusters>10){
-			for (int i = 0; i <= clusters; i++){ 
+		addClusterGates(gate, clusters, runID, "BackSPIN_Run_"+bsParamName_RunID);
+		result.setGatingML(gate.toString());
+	}
+	/*
+	 *  Creates the gating markup for a parameter sweep, one set of cluster gates on the
+	 *  cluster parameter of every configuration.
+	 *  @param ExternalAlgorithmResults
+	 *  @param List<String[]> sweepTable rows of parameter name, levels, genes, stop const, clusters, score
+	 *  return void
+	 */
+	private void addSweepGatingML(ExternalAlgorithmResults result, List<String[]> sweepTable)
+	{
+		SElement gate = new SElement("gating:Gating-ML");
+		for (int n = 0; n < sweepTable.size(); n++) {
+			String[] row = sweepTable.get(n);
+			addClusterGates(gate, Integer.parseInt(row[4])-1, row[0], "BackSPIN_Run_"+bsParamName_RunID+"_Sweep_"+(n+1));
+		}
+		result.setGatingML(gate.toString());
+	}
+	/*
+	 *  Adds a 1-D range gate for every cluster ID from 0 to lastCluster on the parameter paramName.
+	 */
+	private void addClusterGates(SElement gate, int lastCluster, String paramName, String gatePrefix)
+	{
+			for (int i = 0; i <= lastCluster; i++){ 
 				int val = i;
 				// create the XML elements for a 1-D range gate
 				SElement rangeGateElem = new SElement("gating:RectangleGate");
-				rangeGateElem.setString("gating:id", "BackSPIN_Run_"+bsParamName_RunID+"_Cluster_"+i);
+				rangeGateElem.setString("gating:id", gatePrefix+"_Cluster_"+i);
 				gate.addContent(rangeGateElem);
 				// create the dimension XML element
 				SElement dimElem = new SElement("gating:dimension");
@@ -492,10 +705,9 @@ public class BackSPIN implements PopulationPluginInterface {
 				rangeGateElem.addContent(dimElem);
 				// create the parameter name XML element
 				SElement fcsDimElem = new SElement("data-type:fcs-dimension");
-				fcsDimElem.setString("data-type:name", runID);
+				fcsDimElem.setString("data-type:name", paramName);
 				dimElem.addContent(fcsDimElem);
 			}
-		result.setGatingML(gate.toString());
 	}
 
 	public void installBackSPIN(){
@@ -645,6 +857,53 @@ public class BackSPIN implements PopulationPluginInterface {
 		}
 		return clustMap;
 	}
+	/*
+	 *  Reads the comparison table written by the sweep reader, skipping its header.
+	 *  Each row holds parameter name, levels, genes, stop const, clusters and score.
+	 */
+	private List<String[]> getSweepTable(String sweepTableFile)
+	{
+		List<String[]> sweepTable = new ArrayList<String[]>();
+		BufferedReader tableReader = null;
+		try {
+			tableReader = new BufferedReader(new FileReader(sweepTableFile));
+			String line = tableReader.readLine();
+			while ((line = tableReader.readLine()) != null)
+			{
+				if (!line.trim().isEmpty())
+					sweepTable.add(line.split(","));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		finally
+		{
+			if (tableReader != null)
+				try {
+					tableReader.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+		}
+		return sweepTable;
+	}
+
+	private void showSweepTable(List<String[]> sweepTable, String sweepTableFile)
+	{
+		String textToDisplay = "<html><body>";
+		textToDisplay += "<h4><center>BackSPIN Parameter Sweep<center></h4>";
+		textToDisplay += "<table border=1><tr><th>Parameter</th><th>Levels</th><th>Genes</th><th>Stop Const</th><th>Clusters</th><th>Mean Split Score</th></tr>";
+		for (String[] row : sweepTable) {
+			textToDisplay += "<tr>";
+			for (String value : row)
+				textToDisplay += "<td>"+value+"</td>";
+			textToDisplay += "</tr>";
+		}
+		textToDisplay += "</table>";
+		textToDisplay += "<br>Table saved to "+sweepTableFile;
+		textToDisplay += "</body></html>";
+		JOptionPane.showMessageDialog(null, textToDisplay, "BackSPIN Plugin", JOptionPane.PLAIN_MESSAGE);
+	}
 	public boolean findR() {
 		String command = "python -V\n";
 		String response = "";
@@ -421,7 +421,133 @@ def backSPIN(data, numLevels=2, first_run_iters=10, first_run_step=0.05, runs_it
     
     
 
-def _divide_to_2and_resort(sorted_data, wid, iters_spin=8, stop_const = 1.15, low_thrs=0.2 , sort_genes=True, verbose=False):
+def _split_tree(data, genes, cells, level, max_levels, runs_iters, runs_step, split_limit_g, split_limit_c,\
+    stop_const, low_thrs, score=0., verbose=False):
+    '''Recursively split a group of cells as backSPIN does, keeping every split that passes stop_const
+
+    Returns
+    -------
+    node: Result object
+        cells: 1-D array
+            the columns of data in the group, in SPIN order
+        score: float
+            the splitting score the group got when it was created (0 for the root)
+        ratio: float
+            the splitting ratio of the best breaking point of the group, -inf if the group
+            was not tried because it is below the splitting limits or at the maximum depth
+        children: list
+            the two subgroups, empty if the group was not split
+    '''
+    node = Results()
+    node.cells = cells
+    node.score = score
+    node.ratio = -inf
+    node.children = []
+    if level < max_levels and (len(genes)>split_limit_g) & (len(cells)>split_limit_c):
+        # The sweep only reports cell clusters, so genes are never sorted
+        divided, node.ratio = _divide_to_2and_resort(data[ ix_(genes, cells) ], wid=runs_step, iters_spin=runs_iters,\
+            stop_const=stop_const, low_thrs=low_thrs, sort_genes=False, verbose=verbose, return_ratio=True)
+        if divided:
+            sorted_data_resort1, genes_resort1, cells_resort1,\
+            gr1, gr2, genesgr1, genesgr2, score1, score2 = divided
+            genes, cells = genes[genes_resort1], cells[cells_resort1]
+            node.children = [ _split_tree(data, genes[genesgr], cells[gr], level+1, max_levels, runs_iters, runs_step,\
+                split_limit_g, split_limit_c, stop_const, low_thrs, sc, verbose)\
+                for genesgr, gr, sc in [(genesgr1, gr1, score1), (genesgr2, gr2, score2)] ]
+    return node
+
+
+def _tree_leaves(node, numLevels, stop_const, level=0):
+    '''The groups backSPIN with numLevels and stop_const ends with, left to right'''
+    if level == numLevels or not node.children or node.ratio <= stop_const:
+        return [node]
+    return [leaf for child in node.children for leaf in _tree_leaves(child, numLevels, stop_const, level+1)]
+
+
+def backSPIN_sweep(data, levels_grid, features_grid, stop_const_grid, first_run_iters=10, first_run_step=0.05, runs_iters=8,\
+    runs_step=0.25, split_limit_g=2, split_limit_c=2, low_thrs=0.2, verbose=False):
+    '''Run backSPIN for every combination of depth, feature selection and stop_const,
+    computing the stages the combinations have in common only once
+
+    Parameters
+    ----------
+    data: 2-D array
+        the raw data matrix, rows should be genes and columns single cells/samples
+    levels_grid: list of int
+        the numLevels values to try
+    features_grid: list of int
+        the number of genes kept by feature_selection, 0 keeps all the genes
+    stop_const_grid: list of float
+        the stop_const values to try
+    other parameters:
+        as in backSPIN
+
+    Returns
+    -------
+    configs: list of Result object
+        one per combination, each containing the attributes
+        numLevels, n_genes, stop_const: the parameters of the combination
+        cells_gr: 1-D array
+            the cluster of every cell, in the same order as the columns of data
+        n_clusters: int
+            the number of clusters found
+        score: float
+            the mean splitting score of the cells at the deepest level
+
+    Notes
+    -----
+    feature_selection ranks the genes once, every gene count takes a prefix of that ranking.
+    log2 transform and centring are computed per gene, so they are done once on all the genes.
+    The preparatory SPIN only depends on the selected genes and is run once per gene count.
+    How a group is split does not depend on the depth or on stop_const, which only decide
+    whether the split is kept, and a group that is not split stays the same at the following
+    levels. So every gene count builds a single tree of splits, down to the maximum depth and
+    with the smallest stop_const, and each combination reads its clusters from the part of the
+    tree whose splitting ratios pass its own stop_const.
+    '''
+    N, M = data.shape
+    max_levels = max(levels_grid)
+    if max(features_grid) > 0:
+        if verbose:
+            print ('Ranking features')
+        ranking = feature_selection(data, N-1, verbose=verbose)
+    log_data = log2(data+1)
+    log_data = log_data - log_data.mean(1)[:,newaxis]
+
+    configs = []
+    for n_features in sorted(set(features_grid)):
+        # feature_selection only returns every gene when it was skipped
+        if n_features == 0 or n_features >= N or len(ranking) == N:
+            ix_features = arange(N)
+        else:
+            ix_features = ranking[:n_features]
+        data_f = log_data[ix_features,:]
+        if verbose:
+            print ('\nPreparatory SPIN on %i genes' % len(ix_features))
+        prep_order = SPIN(data_f, widlist=_generate_widlist(data_f, axis=1, step=first_run_step), iters=first_run_iters, axis=1, verbose=verbose)
+        if verbose:
+            print ('\nSplitting %i genes, %i levels, stop_const %.3f' % (len(ix_features), max_levels, min(stop_const_grid)))
+        tree = _split_tree(data_f, arange(len(ix_features)), prep_order, 0, max_levels, runs_iters, runs_step,\
+            split_limit_g, split_limit_c, min(stop_const_grid), low_thrs, verbose=verbose)
+        for stop_const in sorted(set(stop_const_grid)):
+            for numLevels in sorted(set(levels_grid)):
+                leaves = _tree_leaves(tree, numLevels, stop_const)
+                config = Results()
+                config.numLevels = numLevels
+                config.n_genes = len(ix_features)
+                config.stop_const = stop_const
+                config.cells_gr = zeros(M, dtype=int)
+                config.score = 0.
+                for k, leaf in enumerate(leaves):
+                    config.cells_gr[leaf.cells] = k
+                    config.score += leaf.score * len(leaf.cells)
+                config.score /= M
+                config.n_clusters = len(leaves)
+                configs.append(config)
+    return configs
+
+
+def _divide_to_2and_resort(sorted_data, wid, iters_spin=8, stop_const = 1.15, low_thrs=0.2 , sort_genes=True, verbose=False, return_ratio=False):
     '''Core function of backSPIN: split the datamatrix in two and resort the two halves
 
     Parameters
@@ -437,14 +563,15 @@ def _divide_to_2and_resort(sorted_data, wid, iters_spin=8, stop_const = 1.15, lo
         uses higly correlated gens to assign the gene to one of the two groups
     verbose: bool
         information about the split is printed
+    return_ratio: bool
+        also return the splitting ratio compared with stop_const
 
     Returns
     -------
     '''
     
-    # Calculate correlation matrix for cells and genes
+    # Calculate correlation matrix for cells
     Rcells = corrcoef(sorted_data.T)
-    Rgenes = corrcoef(sorted_data)
     # Look for the optimal breaking point
     N = Rcells.shape[0]
     score = zeros(N)
@@ -467,9 +594,10 @@ def _divide_to_2and_resort(sorted_data, wid, iters_spin=8, stop_const = 1.15, lo
     score2 = mean( score2[score2 != 0] )
     avg_tot = triu(Rcells)
     avg_tot = mean( avg_tot[avg_tot != 0] )
+    ratio = max([score1,score2])/avg_tot
 
     # If it is convenient to break
-    if (max([score1,score2])/avg_tot) > stop_const:
+    if ratio > stop_const:
         # Divide in two groups
         gr1 = arange(N)[:breakp1]
         gr2 = arange(N)[breakp1:]
@@ -550,12 +678,15 @@ def _divide_to_2and_resort(sorted_data, wid, iters_spin=8, stop_const = 1.15, lo
         # resort
         sorted_data_resort1 = sorted_data[ix_(genes_resort1,cells_resort1)]
 
-        return sorted_data_resort1, genes_resort1, cells_resort1, gr1, gr2, genesgr1, genesgr2, score1, score2
+        divided = sorted_data_resort1, genes_resort1, cells_resort1, gr1, gr2, genesgr1, genesgr2, score1, score2
 
     else:
         if verbose:
-            print('Low splitting score was : %.4f' % (max([score1,score2])/avg_tot))
-        return False
+            print('Low splitting score was : %.4f' % ratio)
+        divided = False
+    if return_ratio:
+        return divided, ratio
+    return divided
 
 
 def fit_CV(mu, cv, fit_method='Exp', svr_gamma=0.06, x0=[0.5,0.5], verbose=False):
@@ -677,9 +808,184 @@ def feature_selection(data,thrs, verbose=False):
  
     return ix_genes[argsort(score)[::-1]][:thrs]
 
+
+def write_model(filepath, input_cef, gene_means, data, results):
+    '''Write a compact backSPIN model that can classify new samples without re-clustering
+    Parameters
+    ----------
+    filepath: str
+        path of the cef file the model will be written to
+    input_cef: CEF_obj
+        the input (after feature selection), its row attributes identify the genes
+    gene_means: 1-D array
+        the mean of log2(x+1) of every gene, used for row centring
+    data: 2-D array
+        the log2 transformed and row centred data matrix backSPIN was run on
+    results: Result object
+        the output of backSPIN
+
+    Notes
+    -----
+    Rows are the selected genes with their gene groups for every level,
+    columns are the cell clusters of every level and the matrix contains the
+    cluster centroids in the log2 transformed and row centred space.
+    '''
+    numLevels = results.cells_gr_level.shape[1] - 1
+    sorted_data = data[ ix_(results.genes_order, results.cells_order) ]
+    levels, clusters, parents, centroids = [], [], [], []
+    for i in range(1, numLevels+1):
+        for k in unique(results.cells_gr_level[:,i]):
+            members = results.cells_gr_level[:,i] == k
+            levels.append(i)
+            clusters.append(int(k))
+            parents.append(int(results.cells_gr_level[members,i-1][0]))
+            centroids.append(sorted_data[:,members].mean(1))
+
+    model_cef = CEF_obj()
+    model_cef.add_header('Model', 'backSPIN')
+    model_cef.add_header('Transform', 'log2(x+1)')
+    model_cef.add_header('Centering', 'Mean')
+    model_cef.add_header('numLevels', numLevels)
+    for r_name, r_val in zip( input_cef.row_attr_names, input_cef.row_attr_values):
+        model_cef.add_row_attr(r_name, array(r_val)[results.genes_order])
+    model_cef.add_row_attr('Mean', gene_means[results.genes_order])
+    for level, groups in enumerate( results.genes_gr_level.T ):
+        model_cef.add_row_attr('Level_%i_group' % level, [int(el) for el in groups])
+    model_cef.add_col_attr('Level', levels)
+    model_cef.add_col_attr('Cluster', clusters)
+    model_cef.add_col_attr('Parent', parents)
+    model_cef.set_matrix(array(centroids).T)
+    model_cef.writeCEF(filepath, matrix_str_fmt='%.6g')
+
+
+def _corr_columns(a, b):
+    '''Pearson correlation between every column of a and every column of b'''
+    a = a - a.mean(0)
+    b = b - b.mean(0)
+    norm_a = sqrt(sum(a**2, 0))
+    norm_b = sqrt(sum(b**2, 0))
+    norm_a[norm_a == 0] = 1
+    norm_b[norm_b == 0] = 1
+    return dot( (a/norm_a).T, b/norm_b )
+
+
+def _assign_to_centroids(x, genes_gr_level, levels, clusters, parents, centroids):
+    '''Walk the cluster hierarchy of a model, at every split assigning a cell
+    to the child centroid that correlates best on the genes of the parent group'''
+    numLevels = genes_gr_level.shape[1] - 1
+    cells_gr_level = zeros((x.shape[1], numLevels+1), dtype=int)
+    for i in range(1, numLevels+1):
+        for p in unique(cells_gr_level[:,i-1]):
+            children = nonzero( (levels == i) & (parents == p) )[0]
+            cells = nonzero(cells_gr_level[:,i-1] == p)[0]
+            if len(children) == 1:
+                cells_gr_level[cells,i] = clusters[children[0]]
+                continue
+            genes = nonzero(genes_gr_level[:,i-1] == p)[0]
+            if len(genes) < 2:
+                genes = arange(x.shape[0])
+            corr = _corr_columns(x[ix_(genes,cells)], centroids[ix_(genes,children)])
+            cells_gr_level[cells,i] = clusters[children[corr.argmax(1)]]
+    return cells_gr_level
+
+
+def apply_model(counts, model_cef, found=None, chunk_size=5000, verbose=False):
+    '''Assign the cells of a new sample to the clusters of a saved backSPIN model
+    Parameters
+    ----------
+    counts: 2-D array
+        raw counts of the model genes (rows in model order) for every cell (columns)
+    model_cef: CEF_obj
+        a model written by write_model
+    found: 1-D array
+        the model rows the rows of counts correspond to, as returned by match_model_genes.
+        Missing genes are left out of every split instead of being counted as zero
+    chunk_size: int
+        number of cells that are transformed and assigned at a time
+    verbose: bool
+        print the progress
+
+    Returns
+    -------
+    cells_gr_level: 2-D array
+        for each depth level contains the model cluster index of each cell,
+        cells are in the same order as the columns of counts
+    '''
+    r_names = model_cef.row_attr_names
+    c_names = model_cef.col_attr_names
+    numLevels = int(model_cef.header_values[model_cef.header_names.index('numLevels')])
+    gene_means = array(model_cef.row_attr_values[r_names.index('Mean')], dtype=float)
+    genes_gr_level = array([model_cef.row_attr_values[r_names.index('Level_%i_group' % i)] for i in range(numLevels+1)], dtype=int).T
+    levels = array(model_cef.col_attr_values[c_names.index('Level')], dtype=int)
+    clusters = array(model_cef.col_attr_values[c_names.index('Cluster')], dtype=int)
+    parents = array(model_cef.col_attr_values[c_names.index('Parent')], dtype=int)
+    centroids = array(model_cef.matrix, dtype=float)
+    if found is not None:
+        gene_means = gene_means[found]
+        genes_gr_level = genes_gr_level[found,:]
+        centroids = centroids[found,:]
+
+    M = counts.shape[1]
+    cells_gr_level = zeros((M, numLevels+1), dtype=int)
+    # Every cell is assigned independently, so cells are processed in chunks to bound the
+    # temporaries of the transform and the correlation (counts itself is held in memory)
+    for start in range(0, M, chunk_size):
+        stop = min(start+chunk_size, M)
+        if verbose:
+            print ('Assigning cells %i-%i of %i' % (start+1, stop, M))
+            sys.stdout.flush()
+        x = log2(counts[:,start:stop]+1) - gene_means[:,newaxis]
+        cells_gr_level[start:stop,:] = _assign_to_centroids(x, genes_gr_level, levels, clusters, parents, centroids)
+    return cells_gr_level
+
+
+def match_model_genes(data, gene_names, model_cef, min_fraction=0.5, verbose=False):
+    '''Reorder the rows of data to the genes of a model that are found in data
+    Parameters
+    ----------
+    data: 2-D array
+        the raw data matrix, rows should be genes and columns single cells/samples
+    gene_names: list of str
+        the name of every row of data
+    model_cef: CEF_obj
+        a model written by write_model
+    min_fraction: float
+        minimum fraction of the model genes that has to be found in data
+
+    Returns
+    -------
+    counts: 2-D array
+        the rows of data of the found genes, in model gene order
+    found: 1-D array
+        the model row of every row of counts
+
+    Raises
+    ------
+    ValueError
+        if too few model genes are found or a gene group of the model has none of its genes
+    '''
+    r_names = model_cef.row_attr_names
+    model_genes = model_cef.row_attr_values[r_names.index('Gene')]
+    row_of_gene = dict( (g, n) for n, g in enumerate(gene_names) )
+    matched = array([ (n, row_of_gene[g]) for n, g in enumerate(model_genes) if g in row_of_gene ], dtype=int).reshape(-1,2)
+    if verbose:
+        print ('%i of %i model genes found in the sample' % (matched.shape[0], len(model_genes)))
+    if matched.shape[0] < min_fraction*len(model_genes) or matched.shape[0] == 0:
+        raise ValueError('Only %i of %i model genes were found in the sample, select the genes the model was built on.'\
+            % (matched.shape[0], len(model_genes)))
+    # Every split is decided on the genes of its group, so each group needs some of its genes
+    level = 0
+    while 'Level_%i_group' % level in r_names:
+        groups = array(model_cef.row_attr_values[r_names.index('Level_%i_group' % level)], dtype=int)
+        empty = setdiff1d(groups, groups[matched[:,0]])
+        if len(empty) > 0:
+            raise ValueError('None of the genes of model gene group %i at level %i were found in the sample.' % (empty[0], level))
+        level += 1
+    return data[matched[:,1],:], matched[:,0]
+
 def usage_quick():
 
-    message ='''usage: backSPIN [-hbv] [-i inputfile] [-o outputfolder] [-d int] [-f int] [-t int] [-s float] [-T int] [-S float] [-g int] [-c int] [-k float] [-r float]
+    message ='''usage: backSPIN [-hbv] [-i inputfile] [-o outputfolder] [-d int] [-f int] [-t int] [-s float] [-T int] [-S float] [-g int] [-c int] [-k float] [-r float] [-m modelfile] [-a modelfile] [-p]
     manual: backSPIN -h
     '''
     print (message)
@@ -744,6 +1050,21 @@ def usage():
               Normal spin accepts the parameters -T -S
               An axis value 0 to only sort genes (rows), 1 to only sort cells (columns) or 'both' for both
               must be passed
+       -m [modelfile]
+              Write a cef formatted model of the backSPIN result: the selected genes, their
+              centring means, the gene groups of every level and the cluster centroids.
+       -a [modelfile]
+              Apply a model written with -m instead of running backSPIN. Cells are assigned
+              to the model clusters, so cluster indexes are the same as in the original run.
+              Model genes missing in the input are left out of the assignment and of the output.
+              Only -i, -o and -v apply.
+       -p
+              Parameter sweep. -d, -f and -k accept comma separated lists of values and backSPIN
+              is run for every combination, sharing feature selection, log transform, centring,
+              the preparatory SPIN and the splits between them. A -f value of 0 keeps all the genes.
+              Genes are not sorted and -m, -a and -b cannot be used.
+              The output cef has one row per combination with its parameters, number of clusters
+              and mean splitting score, and the cluster of every cell as matrix.
        -v  
               Verbose. Print  to the stdoutput extra details of what is happening
 
@@ -771,9 +1092,16 @@ if __name__ == '__main__':
     low_thrs=0.2 # -r
     normal_spin = False #-b
     normal_spin_axis = 'both'
+    model_out_path = None # -m
+    model_in_path = None # -a
+    numLevels_grid = [numLevels]
+    feature_genes_grid = [feature_genes]
+    stop_const_grid = [stop_const]
     verbose=False # -v
 
-    optlist, args = getopt.gnu_getopt(sys.argv[1:], "hvi:o:f:d:t:s:T:S:g:c:k:r:b:", ["help", "input=","output="])
+    optlist, args = getopt.gnu_getopt(sys.argv[1:], "hvpi:o:f:d:t:s:T:S:g:c:k:r:b:m:a:", ["help", "input=","output="])
+    # In a parameter sweep -d, -f and -k are lists, so they are parsed once all the options are known
+    sweep = ('-p', '') in optlist # -p
 
     if optlist== [] and args == []:
         usage_quick()
@@ -787,11 +1115,17 @@ if __name__ == '__main__':
         elif opt in ("-o", "--output"):
             outfiles_path = a
         elif opt == '-d':
-            numLevels = int(a)
+            if sweep:
+                numLevels_grid = [int(el) for el in a.split(',')]
+            else:
+                numLevels = int(a)
         elif opt == '-f':
             feature_fit = True
             if a != '':
-                feature_genes = int(a)
+                if sweep:
+                    feature_genes_grid = [int(el) for el in a.split(',')]
+                else:
+                    feature_genes = int(a)
         elif opt == '-t':
             first_run_iters = int(a)
         elif opt == '-s':
@@ -805,7 +1139,10 @@ if __name__ == '__main__':
         elif opt == '-c':
             split_limit_c = int(a)
         elif opt == '-k':
-            stop_const = float(a)
+            if sweep:
+                stop_const_grid = [float(el) for el in a.split(',')]
+            else:
+                stop_const = float(a)
         elif opt == '-r':
             low_thrs = float(a)
         elif opt == '-v':
@@ -817,9 +1154,21 @@ if __name__ == '__main__':
                     normal_spin_axis = a
                 else:
                     normal_spin_axis = int(a)
+        elif opt == '-m':
+            model_out_path = a
+        elif opt == '-a':
+            model_in_path = a
+        elif opt == '-p':
+            pass
         else:
             assert False, "%s option is not supported" % opt
 
+    if model_out_path != None and (model_in_path != None or normal_spin or sweep):
+        print ('A model can only be written by a single backSPIN run, -m cannot be combined with -a, -b or -p.\n')
+        sys.exit(1)
+    if sweep and (normal_spin or model_in_path != None):
+        print ('A parameter sweep runs backSPIN, -p cannot be combined with -a or -b.\n')
+        sys.exit(1)
     if input_path == None:
         print ('No input file was provided.\nYou need to specify an input file\n(e.g. backSPIN -i path/to/your/file/foo.cef)\n')
         sys.exit()
@@ -835,7 +1184,7 @@ if __name__ == '__main__':
 
         data = array(input_cef.matrix)
 
-        if feature_fit:
+        if feature_fit and model_in_path == None and not sweep:
             if verbose:
                 print ("Performing feature selection")
             ix_features = feature_selection(data, feature_genes, verbose=verbose)
@@ -846,8 +1195,10 @@ if __name__ == '__main__':
             input_cef.row_attr_values = atleast_2d( array( input_cef.row_attr_values ))[:,ix_features].tolist()
             input_cef.update()
         
-        data = log2(data+1)
-        data = data - data.mean(1)[:,newaxis]
+        if model_in_path == None and not sweep:
+            data = log2(data+1)
+            gene_means = data.mean(1)
+            data = data - gene_means[:,newaxis]
         if data.shape[0] <= 3 and data.shape[1] <= 3:
             print ('Input file is not correctly formatted.\n')
             sys.exit()
@@ -859,7 +1210,83 @@ if __name__ == '__main__':
         print ('Please check that your input file is a correctly formatted cef file.\n')
         sys.exit()
 
-    if normal_spin == False:
+    if model_in_path != None:
+
+        print ('backSPIN model assignment started\n----------------\n')
+        print ('Input file:\n%s\n' % input_path)
+        print ('Model file:\n%s\n' % model_in_path)
+        print ('Output file:\n%s\n' % outfiles_path)
+
+        model_cef = CEF_obj()
+        model_cef.readCEF(model_in_path, matrix_dtype=float)
+        gene_names = input_cef.row_attr_values[input_cef.row_attr_names.index('Gene')]
+        try:
+            counts, found = match_model_genes(data, gene_names, model_cef, verbose=verbose)
+        except ValueError as err:
+            print ('The model cannot be applied to this sample.\n%s\n' % err)
+            sys.exit(1)
+        cells_gr_level = apply_model(counts, model_cef, found, verbose=verbose)
+
+        sys.stdout.flush()
+        print ('\nWriting output.\n')
+
+        output_cef = CEF_obj()
+
+        for h_name, h_val in zip( input_cef.header_names, input_cef.header_values):
+            output_cef.add_header(h_name, h_val )
+        output_cef.add_header('Missing model genes', len(model_cef.matrix) - len(found))
+        for c_name, c_val in zip( input_cef.col_attr_names, input_cef.col_attr_values):
+            output_cef.add_col_attr(c_name, c_val)
+        # Only the genes of the sample are written, so gene sets never contain missing parameters
+        for r_name, r_val in zip( model_cef.row_attr_names, model_cef.row_attr_values):
+            if r_name != 'Mean':
+                output_cef.add_row_attr(r_name, array(r_val)[found])
+
+        for level, groups in enumerate( cells_gr_level.T ):
+            output_cef.add_col_attr('Level_%i_group' % level, [int(el) for el in groups])
+
+        output_cef.set_matrix(counts)
+        if sum(type(i)==float for i in input_cef.matrix[0]) + sum(type(i)==float for i in input_cef.matrix[-1]) == 0:
+            fmt = '%i'
+        else:
+            fmt ='%.6g'
+        output_cef.writeCEF( outfiles_path, matrix_str_fmt=fmt )
+
+    elif sweep:
+
+        if not feature_fit:
+            feature_genes_grid = [0]
+        print ('backSPIN parameter sweep started\n----------------\n')
+        print ('Input file:\n%s\n' % input_path)
+        print ('Output file:\n%s\n' % outfiles_path)
+        print ('numLevels: %s\nfeature_genes: %s\nstop_const: %s\n' % (numLevels_grid, feature_genes_grid, stop_const_grid))
+
+        configs = backSPIN_sweep(data, numLevels_grid, feature_genes_grid, stop_const_grid, first_run_iters, first_run_step,\
+            runs_iters, runs_step, split_limit_g, split_limit_c, low_thrs, verbose)
+
+        sys.stdout.flush()
+        print ('\nWriting output.\n')
+
+        output_cef = CEF_obj()
+
+        for h_name, h_val in zip( input_cef.header_names, input_cef.header_values):
+            output_cef.add_header(h_name, h_val )
+        for c_name, c_val in zip( input_cef.col_attr_names, input_cef.col_attr_values):
+            output_cef.add_col_attr(c_name, c_val)
+        output_cef.add_row_attr('Config', [n+1 for n in range(len(configs))])
+        output_cef.add_row_attr('numLevels', [config.numLevels for config in configs])
+        output_cef.add_row_attr('Genes', [config.n_genes for config in configs])
+        output_cef.add_row_attr('stop_const', ['%.3f' % config.stop_const for config in configs])
+        output_cef.add_row_attr('Clusters', [config.n_clusters for config in configs])
+        output_cef.add_row_attr('Score', ['%.4f' % config.score for config in configs])
+        output_cef.set_matrix([config.cells_gr for config in configs])
+        output_cef.writeCEF( outfiles_path, matrix_str_fmt='%i' )
+
+        print ('Config\tnumLevels\tGenes\tstop_const\tClusters\tScore')
+        for n, config in enumerate(configs):
+            print ('%i\t%i\t%i\t%.3f\t%i\t%.4f' % (n+1, config.numLevels, config.n_genes, config.stop_const, config.n_clusters, config.score))
+
+    elif normal_spin == False:
 
         print ('backSPIN started\n----------------\n')
         print ('Input file:\n%s\n' % input_path)
@@ -894,6 +1321,10 @@ if __name__ == '__main__':
         else:
             fmt ='%.6g'
         output_cef.writeCEF( outfiles_path, matrix_str_fmt=fmt )
+
+        if model_out_path != None:
+            print ('Writing model.\n')
+            write_model(model_out_path, input_cef, gene_means, data, results)
     else:
 
         print ('normal SPIN started\n----------------\n')
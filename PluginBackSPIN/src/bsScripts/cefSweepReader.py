@@ -0,0 +1,27 @@
+from Cef_tools import CEF_obj
+import numpy as numpy
+
+input_CEF = "BackSPIN_Output_CEF"
+output_Clusters = "CLUSTERS_OUTFILE"
+output_Sweep_Table = "SWEEP_TABLE_OUTFILE"
+
+cef = CEF_obj()
+cef.readCEF(input_CEF)
+
+# One cluster parameter per configuration of the sweep
+configs = cef.row_attr_values[0]
+varListr = ['CellId'] + ['bRUNID_Sweep_' + config for config in configs]
+
+covals_cells = numpy.transpose(cef.col_attr_values[0])
+covals = numpy.column_stack([covals_cells] + [numpy.array(row, dtype=str) for row in cef.matrix])
+covalsFinal = numpy.vstack((varListr, covals))
+
+numpy.savetxt(output_Clusters, covalsFinal, delimiter=",",fmt="%s")
+
+# Comparison table: parameter name, numLevels, genes, stop_const, clusters, score
+table = numpy.column_stack([varListr[1:]] + cef.row_attr_values[1:])
+tableFinal = numpy.vstack((['Parameter'] + cef.row_attr_names[1:], table))
+
+numpy.savetxt(output_Sweep_Table, tableFinal, delimiter=",",fmt="%s")
+
+# End writing sweep clusters and comparison table.